@@ -0,0 +1,57 @@
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+ * A class of the Typing Game that holds one version of the word list
+ * together with the PseudoWordGenerator trained on it. It never changes,
+ * so a new dictionary can be published with a single reference swap.
+ */
+public class Dictionary {
+    // List of all available words
+    private final List<String> words;
+    // Makes up words similar to the ones in words
+    private final PseudoWordGenerator generator;
+
+    /*
+     * Constructor for Dictionary.
+     * Trains a generator that only uses the letters on the keyboard
+     * and makes words as short and as long as the ones in the list.
+     * @param words List<String> of valid words, must not be empty
+     */
+    public Dictionary(List<String> words) {
+        if (words.isEmpty()) {
+            throw new IllegalArgumentException("Dictionary has no words");
+        }
+
+        int minLength = Integer.MAX_VALUE;
+        int maxLength = 0;
+
+        for (String word : words) {
+            minLength = Math.min(minLength, word.length());
+            maxLength = Math.max(maxLength, word.length());
+        }
+
+        this.words = words;
+        this.generator = new PseudoWordGenerator(words, Keyboard.getLetters(), minLength, maxLength);
+    }
+
+    /*
+     * Chooses a random word from the list
+     * @return String word from the list
+     */
+    public String randomWord() {
+
+        return words.get(ThreadLocalRandom.current().nextInt(words.size()));
+
+    }
+
+    /*
+     * Makes up a word similar to the ones in the list
+     * @return String made-up word
+     */
+    public String generatedWord() {
+
+        return generator.nextWord();
+
+    }
+}
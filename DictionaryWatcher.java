@@ -0,0 +1,149 @@
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/*
+ * A class of the Typing Game that watches the dictionary file (or directory)
+ * and reloads the word list on a background thread whenever it changes.
+ */
+public class DictionaryWatcher {
+    // Time to wait for an editor to finish writing before reloading (ms)
+    private static final long SETTLE_MILLIS = 250;
+    // Path to the dictionary file or directory that is watched
+    private final Path path;
+    // Directory that is registered with the WatchService
+    private final Path directory;
+    // Called with every freshly parsed and validated word list
+    private final Consumer<List<String>> onReload;
+    // WatchService (https://docs.oracle.com/javase/8/docs/api/java/nio/file/WatchService.html)
+    private WatchService watchService;
+
+    /*
+     * Constructor for DictionaryWatcher
+     * @param path String to the dictionary file or directory
+     * @param onReload Consumer that publishes the new word list
+     */
+    public DictionaryWatcher(String path, Consumer<List<String>> onReload) {
+        this.path = Paths.get(path).toAbsolutePath().normalize();
+        this.directory = Files.isDirectory(this.path) ? this.path : this.path.getParent();
+        this.onReload = onReload;
+    }
+
+    /*
+     * Registers the dictionary's directory with a WatchService and
+     * starts the daemon thread that reloads the words on every change.
+     * @throws IOException if the directory can not be watched
+     */
+    public void start() throws IOException {
+
+        watchService = FileSystems.getDefault().newWatchService();
+        directory.register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+
+        Thread thread = new Thread(this::watch, "dictionary-watcher");
+        thread.setDaemon(true);
+        thread.start();
+
+    }
+
+    /*
+     * Loop run by the background thread. Waits for changes to the dictionary,
+     * lets the burst of events from a single save settle, then reloads once.
+     */
+    private void watch() {
+
+        try {
+
+            while (true) {
+
+                WatchKey key = watchService.take();
+                boolean changed = isRelevant(key);
+
+                // Editors usually write a file in several steps, so collect
+                // all the events of one save before parsing the new list
+                WatchKey next;
+                while ((next = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    changed |= isRelevant(next);
+                }
+
+                if (changed) {
+                    reload();
+                }
+            }
+        }
+        catch (InterruptedException e) {
+
+            // Watcher thread was interrupted, nothing left to do
+
+        }
+    }
+
+    /*
+     * Checks if any event of the WatchKey touches the dictionary, then resets the key.
+     * @param key WatchKey returned by the WatchService
+     * @return true if the dictionary changed
+     */
+    private boolean isRelevant(WatchKey key) {
+
+        boolean relevant = false;
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+
+            // Events were lost, reload to be safe
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+
+                relevant = true;
+
+            }
+            else if (directory.equals(path)
+                    ? Utils.isWordFile(event.context().toString())
+                    : directory.resolve((Path) event.context()).equals(path)) {
+
+                relevant = true;
+
+            }
+        }
+
+        key.reset();
+
+        return relevant;
+    }
+
+    /*
+     * Parses and validates the dictionary and hands it to onReload.
+     * A missing or empty dictionary is ignored so the previous list stays in use.
+     */
+    private void reload() {
+
+        try {
+
+            List<String> words = Utils.readWords(path.toString());
+
+            if (words.isEmpty()) {
+
+                System.err.println("Ignoring empty dictionary: " + path);
+                return;
+
+            }
+
+            onReload.accept(words);
+
+        }
+        catch (IOException e) {
+
+            System.err.println("Could not reload dictionary: " + e.getMessage());
+
+        }
+    }
+}
@@ -47,6 +47,24 @@ public class Keyboard {
         return keyboard;
     }
 
+    /*
+     * Collects all the letters on the keyboard
+     * @return Set<Character> of the uppercase letters on the keyboard
+     */
+    public static Set<Character> getLetters() {
+
+        Set<Character> letters = new HashSet<>();
+
+        for (List<KeyCode> row : initializeKeys()) {
+
+            for (KeyCode keyCode : row) {
+                letters.add(keyCode.getChar().charAt(0));
+            }
+        }
+
+        return letters;
+    }
+
     /*
      * First checks if the given keyCode exists in the keyCodeToWordBox.
      * If it does then it starts a FillTransition
@@ -80,7 +98,7 @@ public class Keyboard {
      * 3 rows. All letters are uppercase.
      * @return 2D list representing the letters on the keyboard
      */
-    private List<List<KeyCode>> initializeKeys() {
+    private static List<List<KeyCode>> initializeKeys() {
 
         // List to hold threee lists of KeyCodes representing each row of keyboard
         List<List<KeyCode>> keyCodes = new ArrayList<>();
@@ -0,0 +1,536 @@
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CRC32C;
+
+/*
+ * A class of the Typing Game that stores every finished game on disk.
+ *
+ * Games are appended to numbered segment files. Every record is written as
+ * its length, its CRC32 and the entry itself, and is forced to disk before
+ * append returns, so a crash can at most leave a torn record at the end of
+ * the last segment, which is cut off the next time the leaderboard is opened.
+ *
+ * Compacting writes all entries into a single snapshot file and deletes the
+ * segments it covers, so opening the leaderboard reads the snapshot and only
+ * replays the segments written after it. The snapshot holds the player names
+ * followed by one block per column of the LeaderboardIndex, which are read
+ * in large chunks and copied straight into their arrays. Compacting only
+ * happens once enough segments or bytes have been logged since the last
+ * snapshot, so most runs never rewrite it.
+ *
+ * Opening can take a while with many entries, so it should not be done on
+ * the JavaFX thread.
+ */
+public class Leaderboard {
+    // First bytes of the snapshot file ("KSLB")
+    private static final int SNAPSHOT_MAGIC = 0x4B534C42;
+    // Version of the snapshot format
+    private static final int SNAPSHOT_VERSION = 2;
+    // Size of the snapshot header
+    private static final int SNAPSHOT_HEADER_BYTES = 32;
+    // Name of the snapshot file
+    private static final String SNAPSHOT = "snapshot.bin";
+    // Prefix and suffix of the segment files
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    // Size after which a new segment is started
+    private static final long MAX_SEGMENT_BYTES = 64L * 1024 * 1024;
+    // Largest record that is accepted when replaying, anything bigger is a torn record
+    private static final int MAX_RECORD_BYTES = 64 * 1024;
+    // Number of logged segments after which the leaderboard is compacted
+    private static final int COMPACT_AFTER_SEGMENTS = 8;
+    // Number of logged bytes after which the leaderboard is compacted
+    private static final long COMPACT_AFTER_BYTES = 16L * 1024 * 1024;
+    // Directory holding the snapshot and the segments
+    private final Path directory;
+    // In memory index of all entries
+    private LeaderboardIndex index;
+    // Number of the segment currently appended to
+    private long segment;
+    // Channel of the segment currently appended to
+    private FileChannel segmentChannel;
+    // Segments (with at least one record) and bytes logged since the snapshot
+    private int loggedSegments;
+    private long loggedBytes;
+
+    /*
+     * Opens the leaderboard in the given directory, creating it if needed.
+     * Loads the snapshot and replays the segments written after it.
+     * @param path String to the leaderboard directory
+     * @throws IOException
+     */
+    public Leaderboard(String path) throws IOException {
+        directory = Paths.get(path);
+        Files.createDirectories(directory);
+
+        long lastSegment = loadSnapshot();
+
+        for (long s : listSegments()) {
+
+            if (s > lastSegment) {
+
+                long bytes = replaySegment(s);
+
+                // Runs that never finished a game leave empty segments behind
+                if (bytes == 0) {
+
+                    Files.delete(segmentPath(s));
+
+                }
+                else {
+
+                    loggedSegments++;
+                    loggedBytes += bytes;
+
+                }
+            }
+
+            lastSegment = Math.max(lastSegment, s);
+        }
+
+        // Never append to an old segment, its tail may have been cut off
+        segment = lastSegment;
+        openNextSegment();
+
+        if (needsCompaction()) {
+            compact();
+        }
+    }
+
+    /*
+     * Getter for the in memory index
+     * @return index LeaderboardIndex
+     */
+    public LeaderboardIndex getIndex() {
+        return index;
+    }
+
+    /*
+     * Writes the entry to the current segment, forces it to disk
+     * and adds it to the index.
+     * @param entry LeaderboardEntry to store
+     * @return id of the entry in the index
+     * @throws IOException
+     */
+    public synchronized int append(LeaderboardEntry entry) throws IOException {
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        entry.write(new DataOutputStream(bytes));
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+
+        ByteBuffer record = ByteBuffer.allocate(8 + bytes.size());
+        record.putInt(bytes.size());
+        record.putInt((int) crc.getValue());
+        record.put(bytes.toByteArray());
+        record.flip();
+
+        long start = segmentChannel.position();
+        int length = record.remaining();
+
+        try {
+
+            while (record.hasRemaining()) {
+                segmentChannel.write(record);
+            }
+
+            segmentChannel.force(false);
+
+        }
+        catch (IOException e) {
+
+            // Cut off the part of the record that was written, so the next one is not appended after it
+            try {
+
+                segmentChannel.truncate(start);
+                segmentChannel.position(start);
+
+            }
+            catch (IOException truncateFailed) {
+
+                // The torn record is cut off on the next open, never write after it
+                e.addSuppressed(truncateFailed);
+
+                try {
+
+                    openNextSegment();
+
+                }
+                catch (IOException openFailed) {
+
+                    e.addSuppressed(openFailed);
+
+                }
+            }
+
+            throw e;
+        }
+
+        if (start == 0) {
+            loggedSegments++;
+        }
+
+        loggedBytes += length;
+
+        int id = index.add(entry);
+
+        if (segmentChannel.size() >= MAX_SEGMENT_BYTES) {
+            openNextSegment();
+        }
+
+        return id;
+    }
+
+    /*
+     * Writes all entries into a new snapshot and deletes the segments it covers.
+     * The snapshot is written to a temporary file and moved into place,
+     * so a crash leaves either the old or the new snapshot.
+     * @throws IOException
+     */
+    public synchronized void compact() throws IOException {
+
+        try {
+
+            writeSnapshot();
+
+        }
+        finally {
+
+            // writeSnapshot closes the segment, keep appending even if it failed
+            openNextSegment();
+
+        }
+
+    }
+
+    /*
+     * Closes the current segment. Compacts the leaderboard first
+     * if enough has been logged since the last snapshot.
+     * @throws IOException
+     */
+    public synchronized void close() throws IOException {
+
+        if (needsCompaction()) {
+
+            writeSnapshot();
+
+        }
+        else {
+
+            segmentChannel.close();
+
+            // Nothing was appended in this run, do not leave an empty segment behind
+            Path path = segmentPath(segment);
+
+            if (Files.exists(path) && Files.size(path) == 0) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /*
+     * Checks if enough has been logged since the last snapshot to rewrite it
+     * @return true if the leaderboard should be compacted
+     */
+    private boolean needsCompaction() {
+
+        return loggedSegments >= COMPACT_AFTER_SEGMENTS || loggedBytes >= COMPACT_AFTER_BYTES;
+
+    }
+
+    /*
+     * Closes the current segment, writes the snapshot and deletes the segments it covers.
+     *
+     * Header (32 bytes, little endian):
+     *   0  int  magic "KSLB"
+     *   4  int  version
+     *   8  long last segment covered by the snapshot
+     *   16 int  number of entries
+     *   20 int  number of players
+     *   24 long size of the players in bytes
+     * followed by the players, the columns and the CRC32C of all of it.
+     * @throws IOException
+     */
+    private void writeSnapshot() throws IOException {
+
+        // Everything up to the current segment ends up in the snapshot
+        segmentChannel.close();
+        long lastSegment = segment;
+
+        Path tmp = directory.resolve(SNAPSHOT + ".tmp");
+        CRC32C crc = new CRC32C();
+
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+
+            // The size of the players is only known once they are written
+            channel.position(SNAPSHOT_HEADER_BYTES);
+            long playerBytes = index.writePlayers(channel, crc);
+            index.writeColumns(channel, crc);
+
+            ByteBuffer header = ByteBuffer.allocate(SNAPSHOT_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(SNAPSHOT_MAGIC);
+            header.putInt(SNAPSHOT_VERSION);
+            header.putLong(lastSegment);
+            header.putInt(index.size());
+            header.putInt(index.playerCount());
+            header.putLong(playerBytes);
+            header.flip();
+
+            crc.update(header.duplicate());
+
+            ByteBuffer trailer = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+            trailer.putLong(crc.getValue());
+            trailer.flip();
+
+            while (trailer.hasRemaining()) {
+                channel.write(trailer);
+            }
+
+            channel.position(0);
+
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+
+            channel.force(true);
+
+        }
+
+        Files.move(tmp, directory.resolve(SNAPSHOT),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        for (long s : listSegments()) {
+
+            if (s <= lastSegment) {
+                Files.deleteIfExists(segmentPath(s));
+            }
+        }
+
+        loggedSegments = 0;
+        loggedBytes = 0;
+    }
+
+    /*
+     * Loads the snapshot into the index, or starts with an empty index if there is none.
+     * A snapshot that can not be read fails the open instead of being replaced,
+     * since the segments it covers are gone.
+     * @return number of the last segment covered by the snapshot, or 0 if there is none
+     * @throws IOException if the snapshot is unknown, truncated or corrupt
+     */
+    private long loadSnapshot() throws IOException {
+
+        index = new LeaderboardIndex();
+        Path snapshot = directory.resolve(SNAPSHOT);
+
+        if (!Files.exists(snapshot)) {
+            return 0;
+        }
+
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+
+            ByteBuffer header = ByteBuffer.allocate(SNAPSHOT_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0);
+            header.flip();
+
+            if (header.remaining() < SNAPSHOT_HEADER_BYTES || header.getInt() != SNAPSHOT_MAGIC
+                    || header.getInt() != SNAPSHOT_VERSION) {
+
+                throw new IOException("Unknown leaderboard snapshot: " + snapshot);
+
+            }
+
+            long lastSegment = header.getLong();
+            int size = header.getInt();
+            int playerCount = header.getInt();
+            long playerBytes = header.getLong();
+
+            // Check the header against the file before allocating anything for it
+            if (size < 0 || playerCount < 0 || playerBytes < 0 || playerBytes > channel.size()
+                    || channel.size() != SNAPSHOT_HEADER_BYTES + playerBytes
+                    + (long) size * LeaderboardIndex.ENTRY_BYTES + 8) {
+
+                throw new IOException("Truncated leaderboard snapshot: " + snapshot);
+
+            }
+
+            CRC32C crc = new CRC32C();
+            LeaderboardIndex loaded = LeaderboardIndex.read(channel, SNAPSHOT_HEADER_BYTES, playerCount,
+                    playerBytes, size, crc);
+
+            header.rewind();
+            crc.update(header);
+
+            ByteBuffer expected = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(expected, channel.size() - 8);
+            expected.flip();
+
+            if (expected.remaining() < 8 || expected.getLong() != crc.getValue()) {
+
+                throw new IOException("Corrupt leaderboard snapshot: " + snapshot);
+
+            }
+
+            index = loaded;
+
+            return lastSegment;
+        }
+    }
+
+    /*
+     * Adds every complete record of the segment to the index.
+     * A torn or corrupt record ends the segment and is cut off the file.
+     * @param s number of the segment
+     * @return number of valid bytes in the segment
+     * @throws IOException
+     */
+    private long replaySegment(long s) throws IOException {
+
+        Path path = segmentPath(s);
+        long valid = 0;
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+
+            while (true) {
+
+                int length;
+
+                try {
+
+                    length = in.readInt();
+
+                }
+                catch (EOFException e) {
+
+                    // Clean end of the segment
+                    break;
+
+                }
+
+                if (length <= 0 || length > MAX_RECORD_BYTES) {
+                    break;
+                }
+
+                int checksum;
+                byte[] bytes = new byte[length];
+
+                try {
+
+                    checksum = in.readInt();
+                    in.readFully(bytes);
+
+                }
+                catch (EOFException e) {
+
+                    break;
+
+                }
+
+                CRC32 crc = new CRC32();
+                crc.update(bytes);
+
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+
+                index.add(LeaderboardEntry.read(new DataInputStream(new ByteArrayInputStream(bytes))));
+                valid += 8 + length;
+            }
+        }
+
+        if (valid < Files.size(path)) {
+
+            System.err.println("Cutting off torn leaderboard record in " + path);
+
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.truncate(valid);
+                channel.force(true);
+            }
+        }
+
+        return valid;
+    }
+
+    /*
+     * Closes the current segment, if any, and starts the next one
+     * @throws IOException
+     */
+    private void openNextSegment() throws IOException {
+
+        if (segmentChannel != null && segmentChannel.isOpen()) {
+            segmentChannel.close();
+        }
+
+        // Only move on once the new segment exists, so close() never looks for a missing one
+        segmentChannel = FileChannel.open(segmentPath(segment + 1),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        segment++;
+
+    }
+
+    /*
+     * Lists the numbers of all segments in the directory, in order
+     * @return List<Long> segment numbers
+     * @throws IOException
+     */
+    private List<Long> listSegments() throws IOException {
+
+        List<Long> segments = new ArrayList<>();
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory,
+                SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+
+            for (Path path : stream) {
+
+                String name = path.getFileName().toString();
+                String number = name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length());
+
+                try {
+
+                    segments.add(Long.parseLong(number));
+
+                }
+                catch (NumberFormatException e) {
+
+                    // Not one of our segments
+
+                }
+            }
+        }
+
+        Collections.sort(segments);
+
+        return segments;
+    }
+
+    /*
+     * Path of the segment with the given number
+     * @param s number of the segment
+     * @return Path of the segment file
+     */
+    private Path segmentPath(long s) {
+
+        return directory.resolve(String.format("%s%012d%s", SEGMENT_PREFIX, s, SEGMENT_SUFFIX));
+
+    }
+}
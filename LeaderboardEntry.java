@@ -0,0 +1,143 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/*
+ * A class of the Typing Game that holds the result of one finished game.
+ */
+public class LeaderboardEntry {
+    // Name of the player who played the game
+    private final String player;
+    // Number of correct words
+    private final int score;
+    // Words per minute
+    private final double wpm;
+    // Fraction (0 - 1) of the typed letters that ended up in a correct word
+    private final double accuracy;
+    // Length of the game in milliseconds
+    private final long durationMillis;
+    // Value of the spawn speed slider (words / min)
+    private final int spawnSpeed;
+    // Value of the stay duration slider (seconds)
+    private final int stayDuration;
+    // Time the game finished, in milliseconds since the epoch
+    private final long timestamp;
+
+    /*
+     * Constructor for LeaderboardEntry
+     * @param player as String
+     * @param score as int
+     * @param wpm as double
+     * @param accuracy as double
+     * @param durationMillis as long
+     * @param spawnSpeed as int
+     * @param stayDuration as int
+     * @param timestamp as long
+     */
+    public LeaderboardEntry(String player, int score, double wpm, double accuracy, long durationMillis,
+                            int spawnSpeed, int stayDuration, long timestamp) {
+        this.player = player;
+        this.score = score;
+        this.wpm = wpm;
+        this.accuracy = accuracy;
+        this.durationMillis = durationMillis;
+        this.spawnSpeed = spawnSpeed;
+        this.stayDuration = stayDuration;
+        this.timestamp = timestamp;
+    }
+
+    /*
+     * Getter for the player
+     * @return player String
+     */
+    public String getPlayer() {
+        return player;
+    }
+
+    /*
+     * Getter for the score
+     * @return score int
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /*
+     * Getter for the words per minute
+     * @return wpm double
+     */
+    public double getWpm() {
+        return wpm;
+    }
+
+    /*
+     * Getter for the accuracy
+     * @return accuracy double
+     */
+    public double getAccuracy() {
+        return accuracy;
+    }
+
+    /*
+     * Getter for the duration of the game
+     * @return durationMillis long
+     */
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    /*
+     * Getter for the spawn speed setting
+     * @return spawnSpeed int
+     */
+    public int getSpawnSpeed() {
+        return spawnSpeed;
+    }
+
+    /*
+     * Getter for the stay duration setting
+     * @return stayDuration int
+     */
+    public int getStayDuration() {
+        return stayDuration;
+    }
+
+    /*
+     * Getter for the time the game finished
+     * @return timestamp long
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /*
+     * Writes the entry in the binary format used by the log and the snapshot
+     * @param out DataOutput to write to
+     * @throws IOException
+     */
+    public void write(DataOutput out) throws IOException {
+
+        out.writeUTF(player);
+        out.writeInt(score);
+        out.writeDouble(wpm);
+        out.writeDouble(accuracy);
+        out.writeLong(durationMillis);
+        out.writeInt(spawnSpeed);
+        out.writeInt(stayDuration);
+        out.writeLong(timestamp);
+
+    }
+
+    /*
+     * Reads an entry written by write
+     * @param in DataInput to read from
+     * @return LeaderboardEntry that was read
+     * @throws IOException
+     */
+    public static LeaderboardEntry read(DataInput in) throws IOException {
+
+        return new LeaderboardEntry(in.readUTF(), in.readInt(), in.readDouble(), in.readDouble(),
+                in.readLong(), in.readInt(), in.readInt(), in.readLong());
+
+    }
+}
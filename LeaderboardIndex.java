@@ -0,0 +1,587 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Checksum;
+
+/*
+ * A class of the Typing Game that keeps every leaderboard entry in memory,
+ * ranked by WPM, and answers top-K, rank and percentile queries.
+ *
+ * WPM is rounded to hundredths and used as a bucket number. A Fenwick tree
+ * (https://en.wikipedia.org/wiki/Fenwick_tree) over the bucket counts gives
+ * the number of entries above any WPM in O(log buckets), no matter how many
+ * entries there are.
+ *
+ * The entries are kept in columns of primitive arrays, one per field, with
+ * the players replaced by ids. That keeps tens of millions of entries small,
+ * and lets the snapshot write and read every column as one block of bytes.
+ */
+public class LeaderboardIndex {
+    // Highest WPM that gets its own bucket, anything faster shares the last one
+    private static final int MAX_WPM = 500;
+    // Number of buckets, one per hundredth of a WPM
+    private static final int BUCKETS = MAX_WPM * 100 + 1;
+    // Size of the buffer used to write and read the columns, a multiple of every value size
+    private static final int CHUNK_BYTES = 1 << 20;
+    // Size of one entry in the snapshot, the sum of the value sizes of all columns
+    public static final int ENTRY_BYTES = 4 + 4 + 8 + 4 + 4 + 2 + 2 + 8;
+    // Number of entries
+    private int size;
+    // Columns of the entries, all indexed by the id of the entry
+    private int[] playerIds;
+    private int[] scores;
+    private double[] wpms;
+    private float[] accuracies;
+    private int[] durations;
+    private short[] spawnSpeeds;
+    private short[] stayDurations;
+    private long[] timestamps;
+    // Name of every player, indexed by player id
+    private final List<String> players;
+    // Id of every player
+    private final Map<String, Integer> playerIdsByName;
+    // Best bucket of every player, indexed by player id
+    private int[] bestBuckets;
+    // Ids of the entries in each bucket, created when first needed
+    private final int[][] bucketIds;
+    // Number of entries in each bucket
+    private final int[] bucketSizes;
+    // Fenwick tree over bucketSizes, 1-based
+    private final int[] tree;
+
+    /*
+     * Constructor for LeaderboardIndex
+     */
+    public LeaderboardIndex() {
+        this(0);
+    }
+
+    /*
+     * Constructor for LeaderboardIndex with room for the given number of entries
+     * @param capacity int number of entries
+     */
+    private LeaderboardIndex(int capacity) {
+        capacity = Math.max(capacity, 16);
+
+        playerIds = new int[capacity];
+        scores = new int[capacity];
+        wpms = new double[capacity];
+        accuracies = new float[capacity];
+        durations = new int[capacity];
+        spawnSpeeds = new short[capacity];
+        stayDurations = new short[capacity];
+        timestamps = new long[capacity];
+
+        players = new ArrayList<>();
+        playerIdsByName = new HashMap<>();
+        bestBuckets = new int[16];
+
+        bucketIds = new int[BUCKETS][];
+        bucketSizes = new int[BUCKETS];
+        tree = new int[BUCKETS + 1];
+    }
+
+    /*
+     * Adds an entry to the index
+     * @param entry LeaderboardEntry to add
+     * @return id of the entry in the index
+     */
+    public int add(LeaderboardEntry entry) {
+
+        if (size == scores.length) {
+            grow(size * 2);
+        }
+
+        int id = size++;
+        int player = playerId(entry.getPlayer());
+        int bucket = bucketOf(entry.getWpm());
+
+        playerIds[id] = player;
+        scores[id] = entry.getScore();
+        wpms[id] = entry.getWpm();
+        accuracies[id] = (float) entry.getAccuracy();
+        durations[id] = (int) Math.min(Integer.MAX_VALUE, entry.getDurationMillis());
+        spawnSpeeds[id] = (short) entry.getSpawnSpeed();
+        stayDurations[id] = (short) entry.getStayDuration();
+        timestamps[id] = entry.getTimestamp();
+
+        // Append the id to its bucket, doubling the bucket when it is full
+        int[] ids = bucketIds[bucket];
+
+        if (ids == null) {
+
+            ids = new int[4];
+            bucketIds[bucket] = ids;
+
+        }
+        else if (bucketSizes[bucket] == ids.length) {
+
+            ids = Arrays.copyOf(ids, ids.length * 2);
+            bucketIds[bucket] = ids;
+
+        }
+
+        ids[bucketSizes[bucket]++] = id;
+
+        for (int i = bucket + 1; i <= BUCKETS; i += i & -i) {
+            tree[i]++;
+        }
+
+        bestBuckets[player] = Math.max(bestBuckets[player], bucket);
+
+        return id;
+    }
+
+    /*
+     * Getter for the number of entries
+     * @return size int
+     */
+    public int size() {
+        return size;
+    }
+
+    /*
+     * Getter for one entry
+     * @param id int id of the entry
+     * @return LeaderboardEntry with the given id
+     */
+    public LeaderboardEntry get(int id) {
+
+        return new LeaderboardEntry(players.get(playerIds[id]), scores[id], wpms[id], accuracies[id],
+                durations[id], spawnSpeeds[id], stayDurations[id], timestamps[id]);
+
+    }
+
+    /*
+     * Returns the k entries with the highest WPM, fastest first.
+     * Entries with the same rounded WPM are returned oldest first.
+     * @param k number of entries to return
+     * @return List<LeaderboardEntry> of at most k entries
+     */
+    public List<LeaderboardEntry> topK(int k) {
+
+        List<LeaderboardEntry> top = new ArrayList<>(Math.min(k, size));
+
+        for (int bucket = BUCKETS - 1; bucket >= 0 && top.size() < k; bucket--) {
+
+            for (int i = 0; i < bucketSizes[bucket] && top.size() < k; i++) {
+                top.add(get(bucketIds[bucket][i]));
+            }
+        }
+
+        return top;
+    }
+
+    /*
+     * Returns the rank of an entry, 1 being the fastest game.
+     * Games with the same rounded WPM share a rank.
+     * @param id int id of the entry
+     * @return rank int
+     */
+    public int rankOfEntry(int id) {
+
+        return size - countUpTo(bucketOf(wpms[id])) + 1;
+
+    }
+
+    /*
+     * Returns the percentage of games that are slower than an entry
+     * @param id int id of the entry
+     * @return percentile double between 0 and 100
+     */
+    public double percentileOfEntry(int id) {
+
+        return 100.0 * countUpTo(bucketOf(wpms[id]) - 1) / size;
+
+    }
+
+    /*
+     * Returns the rank of the player's best game, 1 being the fastest game.
+     * Games with the same rounded WPM share a rank.
+     * @param player String name of the player
+     * @return rank int, or 0 if the player has no games
+     */
+    public int rankOf(String player) {
+
+        Integer id = playerIdsByName.get(player);
+
+        if (id == null) {
+            return 0;
+        }
+
+        return size - countUpTo(bestBuckets[id]) + 1;
+    }
+
+    /*
+     * Returns the percentage of games that are slower than the player's best game
+     * @param player String name of the player
+     * @return percentile double between 0 and 100, or 0 if the player has no games
+     */
+    public double percentileOf(String player) {
+
+        Integer id = playerIdsByName.get(player);
+
+        if (id == null) {
+            return 0;
+        }
+
+        return 100.0 * countUpTo(bestBuckets[id] - 1) / size;
+    }
+
+    /*
+     * Getter for the number of players
+     * @return number of players int
+     */
+    public int playerCount() {
+        return players.size();
+    }
+
+    /*
+     * Writes the names of all players, each as its length followed by its UTF-8 bytes
+     * @param channel FileChannel to write to
+     * @param checksum Checksum to update with the written bytes
+     * @return number of bytes written
+     * @throws IOException
+     */
+    public long writePlayers(FileChannel channel, Checksum checksum) throws IOException {
+
+        ByteBuffer chunk = ByteBuffer.allocateDirect(CHUNK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        long written = 0;
+
+        for (String player : players) {
+
+            byte[] name = player.getBytes(StandardCharsets.UTF_8);
+
+            if (chunk.remaining() < 4 + name.length) {
+                written += flush(chunk, channel, checksum);
+            }
+
+            chunk.putInt(name.length);
+            chunk.put(name);
+        }
+
+        return written + flush(chunk, channel, checksum);
+    }
+
+    /*
+     * Writes every column as one block of little endian values
+     * @param channel FileChannel to write to
+     * @param checksum Checksum to update with the written bytes
+     * @throws IOException
+     */
+    public void writeColumns(FileChannel channel, Checksum checksum) throws IOException {
+
+        ByteBuffer chunk = ByteBuffer.allocateDirect(CHUNK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+        for (Object column : columns()) {
+
+            int elementBytes = elementBytes(column);
+            int perChunk = CHUNK_BYTES / elementBytes;
+
+            for (int from = 0; from < size; from += perChunk) {
+
+                int count = Math.min(perChunk, size - from);
+
+                if (column instanceof int[]) {
+                    chunk.asIntBuffer().put((int[]) column, from, count);
+                }
+                else if (column instanceof double[]) {
+                    chunk.asDoubleBuffer().put((double[]) column, from, count);
+                }
+                else if (column instanceof float[]) {
+                    chunk.asFloatBuffer().put((float[]) column, from, count);
+                }
+                else if (column instanceof short[]) {
+                    chunk.asShortBuffer().put((short[]) column, from, count);
+                }
+                else {
+                    chunk.asLongBuffer().put((long[]) column, from, count);
+                }
+
+                chunk.position(count * elementBytes);
+                flush(chunk, channel, checksum);
+            }
+        }
+    }
+
+    /*
+     * Reads an index written by writePlayers and writeColumns.
+     * Every column is read in chunks into one reused buffer and copied into
+     * its array, then the buckets and the Fenwick tree are rebuilt in a single pass.
+     * @param channel FileChannel to read from
+     * @param position long offset of the players in the file
+     * @param playerCount int number of players
+     * @param playerBytes long size of the players in bytes
+     * @param size int number of entries
+     * @param checksum Checksum to update with the read bytes
+     * @return LeaderboardIndex with all entries
+     * @throws IOException if the file ends early or the players do not match the entries
+     */
+    public static LeaderboardIndex read(FileChannel channel, long position, int playerCount, long playerBytes,
+                                        int size, Checksum checksum) throws IOException {
+
+        if (playerBytes > Integer.MAX_VALUE) {
+            throw new IOException("Too many leaderboard players: " + playerBytes + " bytes");
+        }
+
+        LeaderboardIndex index = new LeaderboardIndex(size);
+
+        ByteBuffer names = ByteBuffer.allocate((int) playerBytes).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, names, position, checksum);
+        position += playerBytes;
+
+        for (int i = 0; i < playerCount; i++) {
+
+            // Check the length before allocating, a corrupt one could be anything
+            int length = names.remaining() >= 4 ? names.getInt() : -1;
+
+            if (length < 0 || length > names.remaining()) {
+                throw new IOException("Corrupt leaderboard player " + i);
+            }
+
+            byte[] name = new byte[length];
+            names.get(name);
+            index.playerId(new String(name, StandardCharsets.UTF_8));
+
+        }
+
+        ByteBuffer chunk = ByteBuffer.allocateDirect(CHUNK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+        for (Object column : index.columns()) {
+
+            int elementBytes = elementBytes(column);
+            int perChunk = CHUNK_BYTES / elementBytes;
+
+            for (int from = 0; from < size; from += perChunk) {
+
+                int count = Math.min(perChunk, size - from);
+
+                chunk.clear().limit(count * elementBytes);
+                readFully(channel, chunk, position, checksum);
+                position += count * elementBytes;
+
+                if (column instanceof int[]) {
+                    chunk.asIntBuffer().get((int[]) column, from, count);
+                }
+                else if (column instanceof double[]) {
+                    chunk.asDoubleBuffer().get((double[]) column, from, count);
+                }
+                else if (column instanceof float[]) {
+                    chunk.asFloatBuffer().get((float[]) column, from, count);
+                }
+                else if (column instanceof short[]) {
+                    chunk.asShortBuffer().get((short[]) column, from, count);
+                }
+                else {
+                    chunk.asLongBuffer().get((long[]) column, from, count);
+                }
+            }
+        }
+
+        // rebuild indexes bestBuckets by player id
+        for (int id = 0; id < size; id++) {
+
+            if (index.playerIds[id] < 0 || index.playerIds[id] >= playerCount) {
+                throw new IOException("Corrupt leaderboard entry " + id);
+            }
+        }
+
+        index.size = size;
+        index.rebuild();
+
+        return index;
+    }
+
+    /*
+     * Rebuilds the buckets, the Fenwick tree and the best bucket of every
+     * player from the columns, after they were read in bulk
+     */
+    private void rebuild() {
+
+        int[] buckets = new int[size];
+
+        for (int id = 0; id < size; id++) {
+
+            int bucket = bucketOf(wpms[id]);
+            buckets[id] = bucket;
+            bucketSizes[bucket]++;
+            bestBuckets[playerIds[id]] = Math.max(bestBuckets[playerIds[id]], bucket);
+
+        }
+
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+
+            if (bucketSizes[bucket] > 0) {
+                bucketIds[bucket] = new int[bucketSizes[bucket]];
+            }
+
+            // Building the Fenwick tree in place takes a single pass
+            tree[bucket + 1] += bucketSizes[bucket];
+            int parent = (bucket + 1) + ((bucket + 1) & -(bucket + 1));
+
+            if (parent <= BUCKETS) {
+                tree[parent] += tree[bucket + 1];
+            }
+        }
+
+        int[] filled = new int[BUCKETS];
+
+        for (int id = 0; id < size; id++) {
+            bucketIds[buckets[id]][filled[buckets[id]]++] = id;
+        }
+    }
+
+    /*
+     * Returns the id of the player, adding the player if it is new
+     * @param player String name of the player
+     * @return player id int
+     */
+    private int playerId(String player) {
+
+        Integer id = playerIdsByName.get(player);
+
+        if (id == null) {
+
+            id = players.size();
+            players.add(player);
+            playerIdsByName.put(player, id);
+
+            if (id == bestBuckets.length) {
+                bestBuckets = Arrays.copyOf(bestBuckets, id * 2);
+            }
+        }
+
+        return id;
+    }
+
+    /*
+     * Makes room for more entries in all columns
+     * @param capacity int new number of entries
+     */
+    private void grow(int capacity) {
+
+        playerIds = Arrays.copyOf(playerIds, capacity);
+        scores = Arrays.copyOf(scores, capacity);
+        wpms = Arrays.copyOf(wpms, capacity);
+        accuracies = Arrays.copyOf(accuracies, capacity);
+        durations = Arrays.copyOf(durations, capacity);
+        spawnSpeeds = Arrays.copyOf(spawnSpeeds, capacity);
+        stayDurations = Arrays.copyOf(stayDurations, capacity);
+        timestamps = Arrays.copyOf(timestamps, capacity);
+
+    }
+
+    /*
+     * All columns in the order they are stored in the snapshot
+     * @return Object[] of the column arrays
+     */
+    private Object[] columns() {
+
+        return new Object[] {playerIds, scores, wpms, accuracies, durations, spawnSpeeds, stayDurations, timestamps};
+
+    }
+
+    /*
+     * Size of one value of a column
+     * @param column Object column array
+     * @return bytes per value
+     */
+    private static int elementBytes(Object column) {
+
+        if (column instanceof double[] || column instanceof long[]) {
+            return 8;
+        }
+
+        if (column instanceof short[]) {
+            return 2;
+        }
+
+        return 4;
+    }
+
+    /*
+     * Writes the chunk to the channel and clears it
+     * @param chunk ByteBuffer filled up to its position
+     * @param channel FileChannel to write to
+     * @param checksum Checksum to update with the written bytes
+     * @return number of bytes written
+     * @throws IOException
+     */
+    private static int flush(ByteBuffer chunk, FileChannel channel, Checksum checksum) throws IOException {
+
+        chunk.flip();
+        int bytes = chunk.remaining();
+
+        checksum.update(chunk.duplicate());
+
+        while (chunk.hasRemaining()) {
+            channel.write(chunk);
+        }
+
+        chunk.clear();
+
+        return bytes;
+    }
+
+    /*
+     * Fills the buffer from the channel and adds the bytes to the checksum
+     * @param channel FileChannel to read from
+     * @param buffer ByteBuffer to fill up to its limit, flipped for reading afterwards
+     * @param position long offset in the file
+     * @param checksum Checksum to update
+     * @throws IOException if the file ends before the buffer is full
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position, Checksum checksum)
+            throws IOException {
+
+        while (buffer.hasRemaining()) {
+
+            int read = channel.read(buffer, position);
+
+            if (read < 0) {
+                throw new EOFException("Leaderboard snapshot ends early");
+            }
+
+            position += read;
+        }
+
+        buffer.flip();
+        checksum.update(buffer.duplicate());
+    }
+
+    /*
+     * Counts the entries in the buckets 0 to bucket (inclusive)
+     * @param bucket int last bucket to count
+     * @return number of entries
+     */
+    private int countUpTo(int bucket) {
+
+        int count = 0;
+
+        for (int i = bucket + 1; i > 0; i -= i & -i) {
+            count += tree[i];
+        }
+
+        return count;
+    }
+
+    /*
+     * Converts a WPM into a bucket number
+     * @param wpm double
+     * @return bucket int
+     */
+    private static int bucketOf(double wpm) {
+
+        long bucket = Math.round(wpm * 100);
+
+        return (int) Math.max(0, Math.min(BUCKETS - 1, bucket));
+    }
+}
@@ -1,5 +1,6 @@
 import javafx.animation.AnimationTimer;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.geometry.Orientation;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -17,6 +18,10 @@ import javafx.scene.control.Alert.AlertType;
 import javafx.stage.Stage;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /*
  *  @author Muhammad Danish
@@ -25,6 +30,20 @@ import javafx.event.EventHandler;
  * additional things to run the gane.
  */
 public class Main extends Application {
+    // Games played for less time than this are not recorded in the leaderboard (ns)
+    private static final long MIN_RECORDED_NANOS = 30_000_000_000L;
+    // Runs all leaderboard work in order, so the disk is never touched on the FX thread
+    private final ExecutorService leaderboardThread = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "leaderboard");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Persistent leaderboard of all finished games, null if it could not be opened.
+    // Only used on the leaderboard thread.
+    private Leaderboard leaderboard;
+    // Pauses the game while the window is minimized, unfocused or nobody types
+    private PowerSaver powerSaver;
+
     public static void main(String[] args) {
         launch(args);
     }
@@ -75,9 +94,41 @@ public class Main extends Application {
         // Put them in the top of the BorderPane
         window.setTop(topVBox);
 
+        // Open the leaderboard in the background, the game still works without one
+        leaderboardThread.execute(() -> {
+
+            try {
+
+                leaderboard = new Leaderboard("./leaderboard");
+
+            }
+            catch (IOException e) {
+
+                System.err.println("Leaderboard disabled: " + e.getMessage());
+
+            }
+        });
+
+        // Name of the player, given with --player=NAME
+        String player = getParameters().getNamed().getOrDefault("player", System.getProperty("user.name"));
+
+        // Open the live feed of the game state for overlays, the game still works without one
+        StateFeed feed = null;
+
+        try {
+
+            feed = new StateFeed(getParameters().getNamed().getOrDefault("feed", "./keyshooter.feed"), 4096);
+
+        }
+        catch (IOException e) {
+
+            System.err.println("State feed disabled: " + e.getMessage());
+
+        }
+
         // Create an instance of our helper Words class
         Words words = new Words("./words.txt", width, (height * 3) / 4,
-                                scoreLabel, typedLabel);
+                                scoreLabel, typedLabel, feed);
 
 
         // Put the pagne in the center of the BorderPane
@@ -93,7 +144,8 @@ public class Main extends Application {
         HBox hBox = new HBox(5);
         hBox.getChildren().addAll(
                 words.getSpawnSpeedLabel(), words.getSpawnSpeedSlider(),
-                words.getStayDurationLabel(), words.getStayDurationSlider()
+                words.getStayDurationLabel(), words.getStayDurationSlider(),
+                words.getGeneratedWordsCheckBox()
         );
         hBox.setAlignment(Pos.CENTER);
 
@@ -108,27 +160,68 @@ public class Main extends Application {
 
         // Get the KeyCode of the event
         // Start the fill transition, which blinks the key
-        // Then add it to the typed letters
+        // Then queue it, the game loop adds it to the typed letters on the next pulse
         scene.setOnKeyPressed(event -> {
             KeyCode keyCode = event.getCode();
+            powerSaver.userActive();
             keyboard.startFillTransition(keyCode);
             words.addTypedLetter(keyCode);
         });
 
+        // Print pulses, key presses, label updates and CPU use every 5 seconds when started with --stats
+        if (getParameters().getRaw().contains("--stats")) {
+
+            PerformanceStats stats = new PerformanceStats(scene);
+            stats.countTextChanges(scoreLabel, typedLabel);
+            stats.start(5);
+
+        }
+
         // Set the scene
         primaryStage.setScene(scene);
 
         // Run the game
         primaryStage.show();
 
-        // AnimationTimer to create words on th screen every 3 seconds using createWord from the Words class.
+        double timeStart = System.nanoTime();
+
+        // AnimationTimer that processes the keys typed since the last pulse and
+        // creates words on th screen every 3 seconds using createWord from the Words class.
         AnimationTimer timer = new AnimationTimer() {
 
             private long lastToggle;
 
+            private long lastScoreUpdate;
+
+            private long pausedSeen;
+
             @Override
             public void handle(long now) {
 
+                // Move the clocks forward by the time the game was paused,
+                // so the next word spawns as if the pause never happened
+                long paused = powerSaver.getPausedNanos();
+
+                if (paused != pausedSeen) {
+
+                    if (lastToggle != 0L) {
+                        lastToggle += paused - pausedSeen;
+                    }
+
+                    lastScoreUpdate += paused - pausedSeen;
+                    pausedSeen = paused;
+
+                }
+
+                // Pause the game if nobody has typed for a while,
+                // and do not spawn or score anything once it is paused
+                if (powerSaver.checkIdle(now)) {
+                    return;
+                }
+
+                // Match all keys typed since the last frame and update the labels once
+                words.processTypedLetters();
+
                 if (lastToggle == 0L) {
 
                     lastToggle = now;
@@ -145,11 +238,29 @@ public class Main extends Application {
 
                     }
                 }
+
+                // Publish the score and WPM to the feed once a second
+                if (now - lastScoreUpdate >= 1_000_000_000L) {
+
+                    double played = System.nanoTime() - powerSaver.getPausedNanos() - timeStart;
+                    words.publishScore(wordsPerMinute(words.getScore(), played));
+                    lastScoreUpdate = now;
+
+                }
             }
         };
-        timer.start();
 
-        double timeStart = System.nanoTime();
+        // Pause the game loop and the floating words together while nobody can play,
+        // after 2 minutes without typing
+        powerSaver = new PowerSaver(primaryStage, 120, () -> {
+            timer.stop();
+            words.pause();
+        }, () -> {
+            words.resume();
+            timer.start();
+        });
+
+        timer.start();
 
         // Stop the game and show WPM when STOP button clicked
         stopButton.setOnAction(new EventHandler<ActionEvent>() {
@@ -159,19 +270,121 @@ public class Main extends Application {
             public void handle(ActionEvent event) {
 
                 timer.stop();
+                powerSaver.stop();
+                stopButton.setDisable(true);
+
+                // Time the game was actually played, without pauses
+                double played = System.nanoTime() - powerSaver.getPausedNanos() - timeStart;
+                double WPM = wordsPerMinute(words.getScore(), played);
 
-                double timeEnd = System.nanoTime();
-                double WPM = words.getScore() / ((timeEnd - (timeStart + 3e9)) / 6e10);
+                words.stop();
+                words.publishScore(WPM);
 
-                words.getWordsPane().getChildren().clear();
+                String message = "WPM: " + Math.round(WPM);
 
                 // Finish the game and show a notification with WPM
-                Alert gameOver = new Alert(AlertType.CONFIRMATION,
-                        "WPM: " + Math.round(WPM));
+                Alert gameOver = new Alert(AlertType.CONFIRMATION, message);
+
+                if (played < MIN_RECORDED_NANOS) {
+
+                    // A few seconds of play say nothing about typing speed, keep them off the leaderboard
+                    gameOver.setContentText(message + "\nGames shorter than "
+                            + MIN_RECORDED_NANOS / 1_000_000_000L + " seconds are not added to the leaderboard.");
+
+                }
+                else {
+
+                    LeaderboardEntry entry = new LeaderboardEntry(player, words.getScore(), WPM,
+                            words.getAccuracy(), Math.round(played / 1e6),
+                            (int) words.getSpawnSpeedSlider().getValue(), words.getStayDuration(),
+                            System.currentTimeMillis());
+
+                    // The rank is added once the game has been recorded
+                    gameOver.setContentText(message + "\nRank: waiting for the leaderboard...");
+
+                    leaderboardThread.execute(() -> {
+
+                        String rank = recordGame(entry);
+                        Platform.runLater(() -> gameOver.setContentText(message + rank));
+
+                    });
+                }
+
                 gameOver.setTitle("Game Over");
                 gameOver.showAndWait();
 
             }
         });
     }
+
+    /*
+     * Words per minute over the time the game was actually played
+     * @param score int number of words typed
+     * @param playedNanos double time played, without pauses (ns)
+     * @return WPM, 0 before any time has been played
+     */
+    private static double wordsPerMinute(int score, double playedNanos) {
+
+        return playedNanos > 0 ? score / (playedNanos / 6e10) : 0;
+
+    }
+
+    /*
+     * Records the game in the leaderboard and describes how it ranks.
+     * Runs on the leaderboard thread.
+     * @param entry LeaderboardEntry of the finished game
+     * @return rank text for the notification, empty if there is no leaderboard
+     */
+    private String recordGame(LeaderboardEntry entry) {
+
+        if (leaderboard == null) {
+            return "";
+        }
+
+        try {
+
+            int id = leaderboard.append(entry);
+            LeaderboardIndex index = leaderboard.getIndex();
+
+            return "\nRank of this game: " + index.rankOfEntry(id) + " of " + index.size() + " games"
+                    + " (faster than " + Math.round(index.percentileOfEntry(id)) + "% of games)";
+
+        }
+        catch (IOException e) {
+
+            System.err.println("Could not save game to leaderboard: " + e.getMessage());
+            return "";
+
+        }
+    }
+
+    /*
+     * Called when the application exits.
+     * Closes the leaderboard after all pending leaderboard work is done.
+     * @throws Exception
+     */
+    @Override
+    public void stop() throws Exception {
+
+        leaderboardThread.execute(() -> {
+
+            if (leaderboard != null) {
+
+                try {
+
+                    leaderboard.close();
+
+                }
+                catch (IOException e) {
+
+                    System.err.println("Could not close leaderboard: " + e.getMessage());
+
+                }
+            }
+        });
+
+        leaderboardThread.shutdown();
+        leaderboardThread.awaitTermination(1, TimeUnit.MINUTES);
+
+    }
 }
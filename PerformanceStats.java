@@ -0,0 +1,117 @@
+import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.input.KeyEvent;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * A class of the Typing Game that measures how much work the game does,
+ * so changes to the game loop can be checked on a real machine.
+ *
+ * Every few seconds it prints the JavaFX pulses, key presses and label text
+ * changes per second and the CPU used by the whole process. The numbers are printed from a
+ * background thread, since anything done on the JavaFX thread, even a
+ * Timeline, would keep the pulses going that are being measured.
+ */
+public class PerformanceStats {
+    // Counters written on the JavaFX thread and read by the printing thread
+    private final AtomicLong pulses = new AtomicLong();
+    private final AtomicLong keys = new AtomicLong();
+    private final AtomicLong labelUpdates = new AtomicLong();
+    // Values at the last print, only used by the printing thread
+    private long lastPulses;
+    private long lastKeys;
+    private long lastLabelUpdates;
+    private long lastTime;
+    private long lastCpuTime;
+
+    /*
+     * Constructor for PerformanceStats
+     * @param scene Scene whose pulses and key presses are counted
+     */
+    public PerformanceStats(Scene scene) {
+
+        scene.addPostLayoutPulseListener(pulses::incrementAndGet);
+        scene.addEventFilter(KeyEvent.KEY_PRESSED, event -> keys.incrementAndGet());
+
+    }
+
+    /*
+     * Counts every change of the text of the labels. Each change makes the
+     * label lay out and style its text again on the next pulse.
+     * @param labels Label... to watch
+     */
+    public void countTextChanges(Label... labels) {
+
+        for (Label label : labels) {
+            label.textProperty().addListener((observable, oldValue, newValue) -> labelUpdates.incrementAndGet());
+        }
+
+    }
+
+    /*
+     * Starts printing the numbers on a daemon thread, for as long as the game runs
+     * @param periodSeconds long seconds between two prints
+     */
+    public void start(long periodSeconds) {
+
+        lastTime = System.nanoTime();
+        lastCpuTime = processCpuTime();
+
+        ScheduledExecutorService printer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "performance-stats");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        printer.scheduleAtFixedRate(this::print, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+
+    }
+
+    /*
+     * Prints the rates since the last print
+     */
+    private void print() {
+
+        long time = System.nanoTime();
+        long cpuTime = processCpuTime();
+        double seconds = (time - lastTime) / 1e9;
+
+        long pulseCount = pulses.get();
+        long keyCount = keys.get();
+        long labelCount = labelUpdates.get();
+
+        // CPU time is summed over all cores, so 100% is one busy core
+        String cpu = cpuTime < 0 || lastCpuTime < 0 ? "n/a"
+                : String.format("%.1f%%", (cpuTime - lastCpuTime) / 1e7 / seconds);
+
+        System.out.printf("Stats: %.1f pulses/s, %.1f keys/s, %.1f label updates/s, CPU %s%n",
+                (pulseCount - lastPulses) / seconds, (keyCount - lastKeys) / seconds,
+                (labelCount - lastLabelUpdates) / seconds, cpu);
+
+        lastPulses = pulseCount;
+        lastKeys = keyCount;
+        lastLabelUpdates = labelCount;
+        lastTime = time;
+        lastCpuTime = cpuTime;
+    }
+
+    /*
+     * CPU time used by the process so far, if the JVM reports it
+     * @return CPU time in nanoseconds, or -1 if it is not available
+     */
+    private static long processCpuTime() {
+
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+        }
+
+        return -1;
+    }
+}
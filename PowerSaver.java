@@ -0,0 +1,138 @@
+import javafx.stage.Stage;
+
+/*
+ * A class of the Typing Game that pauses the game while nobody can play it:
+ * when the window is minimized, when it loses focus, or when nobody has
+ * typed for a while. Once the game loop and all animations are paused,
+ * JavaFX stops its pulses, so a paused game uses almost no CPU or GPU.
+ */
+public class PowerSaver {
+    // Stage that is watched for minimizing and focus
+    private final Stage stage;
+    // Time without typing after which the game is paused (ns)
+    private final long idleTimeout;
+    // Pauses the game loop and all animations
+    private final Runnable onPause;
+    // Resumes the game loop and all animations
+    private final Runnable onResume;
+    // Time of the last key press (ns)
+    private long lastInput;
+    // True while nobody has typed for longer than idleTimeout
+    private boolean idle;
+    // True while the game is paused
+    private boolean paused;
+    // True once the game is over, after which the game is never resumed
+    private boolean stopped;
+    // Time the current pause started (ns)
+    private long pauseStart;
+    // Total time spent in finished pauses (ns)
+    private long pausedNanos;
+
+    /*
+     * Constructor for PowerSaver
+     * @param stage Stage to watch
+     * @param idleSeconds seconds without typing after which the game is paused
+     * @param onPause Runnable that pauses the game
+     * @param onResume Runnable that resumes the game
+     */
+    public PowerSaver(Stage stage, long idleSeconds, Runnable onPause, Runnable onResume) {
+        this.stage = stage;
+        this.idleTimeout = idleSeconds * 1_000_000_000L;
+        this.onPause = onPause;
+        this.onResume = onResume;
+        this.lastInput = System.nanoTime();
+
+        stage.iconifiedProperty().addListener((observable, oldValue, newValue) -> update());
+        stage.focusedProperty().addListener((observable, oldValue, newValue) -> update());
+    }
+
+    /*
+     * Records a key press, which ends an idle pause
+     */
+    public void userActive() {
+
+        lastInput = System.nanoTime();
+
+        if (idle) {
+
+            idle = false;
+            update();
+
+        }
+    }
+
+    /*
+     * Called by the game loop to pause the game once nobody has typed for idleTimeout
+     * @param now long time of the current frame (ns)
+     * @return true if the game is paused, then the rest of the frame must be skipped
+     */
+    public boolean checkIdle(long now) {
+
+        if (!idle && now - lastInput >= idleTimeout) {
+
+            idle = true;
+            update();
+
+        }
+
+        return paused;
+    }
+
+    /*
+     * Stops watching the game, it is not paused or resumed any more
+     */
+    public void stop() {
+
+        if (paused) {
+            pausedNanos += System.nanoTime() - pauseStart;
+        }
+
+        paused = false;
+        stopped = true;
+
+    }
+
+    /*
+     * Getter for the total time the game has been paused, including the current pause
+     * @return paused time in nanoseconds
+     */
+    public long getPausedNanos() {
+
+        if (paused) {
+            return pausedNanos + System.nanoTime() - pauseStart;
+        }
+
+        return pausedNanos;
+
+    }
+
+    /*
+     * Pauses or resumes the game if the state of the window or the player changed
+     */
+    private void update() {
+
+        if (stopped) {
+            return;
+        }
+
+        boolean shouldPause = stage.isIconified() || !stage.isFocused() || idle;
+
+        if (shouldPause && !paused) {
+
+            paused = true;
+            pauseStart = System.nanoTime();
+            onPause.run();
+
+        }
+        else if (!shouldPause && paused) {
+
+            paused = false;
+            pausedNanos += System.nanoTime() - pauseStart;
+
+            // The player is back, do not count the pause as idle time
+            lastInput = System.nanoTime();
+            onResume.run();
+
+        }
+    }
+}
@@ -0,0 +1,238 @@
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+ * A class of the Typing Game that makes up pronounceable pseudo-words.
+ *
+ * It learns how often every letter follows every pair of letters in a word
+ * list (a character trigram model) and then generates words one letter at a
+ * time. The choice of the next letter uses an alias table
+ * (https://en.wikipedia.org/wiki/Alias_method) per pair of letters, so every
+ * letter costs one random number and one table lookup.
+ */
+public class PseudoWordGenerator {
+    // Symbols are the letters 0 - 25 (A - Z) and the word boundary
+    private static final int LETTERS = 26;
+    private static final int BOUNDARY = 26;
+    private static final int SYMBOLS = 27;
+    // One context per pair of previous symbols, plus a fallback row of plain letter frequencies
+    private static final int CONTEXTS = SYMBOLS * SYMBOLS;
+    private static final int FALLBACK = CONTEXTS;
+    // Alias tables that may end the word, row by row
+    private final double[] probability;
+    private final int[] alias;
+    // Alias tables that never end the word, used while the word is too short
+    private final double[] probabilityNoEnd;
+    private final int[] aliasNoEnd;
+    // Shortest and longest words generated
+    private final int minLength;
+    private final int maxLength;
+
+    /*
+     * Constructor for PseudoWordGenerator
+     * @param words List<String> to learn from, letters A-Z only
+     * @param letters Set<Character> of the uppercase letters the words may use
+     * @param minLength shortest word to generate
+     * @param maxLength longest word to generate
+     */
+    public PseudoWordGenerator(List<String> words, Set<Character> letters, int minLength, int maxLength) {
+        if (minLength < 1 || maxLength < minLength) {
+            throw new IllegalArgumentException("Invalid word length " + minLength + " - " + maxLength);
+        }
+
+        this.minLength = minLength;
+        this.maxLength = maxLength;
+
+        boolean[] allowed = new boolean[SYMBOLS];
+        allowed[BOUNDARY] = true;
+
+        for (char c : letters) {
+
+            if (c >= 'A' && c <= 'Z') {
+                allowed[c - 'A'] = true;
+            }
+        }
+
+        // Count how often every symbol follows every context
+        long[] counts = new long[(CONTEXTS + 1) * SYMBOLS];
+
+        for (String word : words) {
+
+            int first = BOUNDARY;
+            int second = BOUNDARY;
+
+            for (int i = 0; i <= word.length(); i++) {
+
+                int next = i < word.length() ? Character.toUpperCase(word.charAt(i)) - 'A' : BOUNDARY;
+
+                if (next < 0 || next >= SYMBOLS) {
+                    break;
+                }
+
+                counts[(first * SYMBOLS + second) * SYMBOLS + next]++;
+
+                if (next != BOUNDARY) {
+                    counts[FALLBACK * SYMBOLS + next]++;
+                }
+
+                first = second;
+                second = next;
+            }
+        }
+
+        // The fallback row must be able to produce something, even for letters that were never seen
+        boolean anyLetter = false;
+
+        for (int s = 0; s < LETTERS; s++) {
+
+            if (allowed[s]) {
+
+                counts[FALLBACK * SYMBOLS + s]++;
+                anyLetter = true;
+
+            }
+        }
+
+        if (!anyLetter) {
+            throw new IllegalArgumentException("No letters to make words from");
+        }
+
+        probability = new double[(CONTEXTS + 1) * SYMBOLS];
+        alias = new int[(CONTEXTS + 1) * SYMBOLS];
+        probabilityNoEnd = new double[(CONTEXTS + 1) * SYMBOLS];
+        aliasNoEnd = new int[(CONTEXTS + 1) * SYMBOLS];
+
+        double[] weights = new double[SYMBOLS];
+
+        for (int row = 0; row <= CONTEXTS; row++) {
+
+            for (int s = 0; s < SYMBOLS; s++) {
+                weights[s] = allowed[s] ? counts[row * SYMBOLS + s] : 0;
+            }
+
+            buildAliasTable(weights, row, probability, alias);
+
+            weights[BOUNDARY] = 0;
+            buildAliasTable(weights, row, probabilityNoEnd, aliasNoEnd);
+        }
+    }
+
+    /*
+     * Generates a new pseudo-word
+     * @return String word in lowercase
+     */
+    public String nextWord() {
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        char[] word = new char[maxLength];
+        int length = 0;
+        int first = BOUNDARY;
+        int second = BOUNDARY;
+
+        while (length < maxLength) {
+
+            boolean mayEnd = length >= minLength;
+            int row = first * SYMBOLS + second;
+            double[] prob = mayEnd ? probability : probabilityNoEnd;
+
+            // Unseen context, fall back to the plain letter frequencies
+            if (prob[row * SYMBOLS] < 0) {
+                row = FALLBACK;
+            }
+
+            int index = row * SYMBOLS + random.nextInt(SYMBOLS);
+            int next = random.nextDouble() < prob[index] ? index - row * SYMBOLS
+                    : (mayEnd ? alias : aliasNoEnd)[index];
+
+            if (next == BOUNDARY) {
+                break;
+            }
+
+            word[length++] = (char) ('a' + next);
+            first = second;
+            second = next;
+        }
+
+        return new String(word, 0, length);
+    }
+
+    /*
+     * Builds one row of an alias table with Vose's method.
+     * A row without any weight is marked with a probability of -1 in its first cell.
+     * @param weights double[] weight of every symbol
+     * @param row int row of the table to fill
+     * @param prob double[] probabilities of the table
+     * @param aliases int[] aliases of the table
+     */
+    private static void buildAliasTable(double[] weights, int row, double[] prob, int[] aliases) {
+
+        int base = row * SYMBOLS;
+        double total = 0;
+
+        for (double w : weights) {
+            total += w;
+        }
+
+        if (total == 0) {
+
+            prob[base] = -1;
+            return;
+
+        }
+
+        // Scale so that the average weight is 1, then pair every small cell with a large one
+        double[] scaled = new double[SYMBOLS];
+        int[] small = new int[SYMBOLS];
+        int[] large = new int[SYMBOLS];
+        int smallCount = 0;
+        int largeCount = 0;
+
+        for (int s = 0; s < SYMBOLS; s++) {
+
+            scaled[s] = weights[s] * SYMBOLS / total;
+
+            if (scaled[s] < 1) {
+                small[smallCount++] = s;
+            }
+            else {
+                large[largeCount++] = s;
+            }
+        }
+
+        while (smallCount > 0 && largeCount > 0) {
+
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+
+            prob[base + less] = scaled[less];
+            aliases[base + less] = more;
+
+            scaled[more] = scaled[more] + scaled[less] - 1;
+
+            if (scaled[more] < 1) {
+                small[smallCount++] = more;
+            }
+            else {
+                large[largeCount++] = more;
+            }
+        }
+
+        // Whatever is left is 1 up to rounding errors
+        while (largeCount > 0) {
+
+            int s = large[--largeCount];
+            prob[base + s] = 1;
+            aliases[base + s] = s;
+
+        }
+
+        while (smallCount > 0) {
+
+            int s = small[--smallCount];
+            prob[base + s] = 1;
+            aliases[base + s] = s;
+
+        }
+    }
+}
@@ -0,0 +1,134 @@
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/*
+ * A class of the Typing Game that publishes the live game state into a
+ * ring buffer in a memory-mapped file, so other processes (overlays,
+ * dashboards) can follow the game without polling the UI.
+ *
+ * There is a single writer, the JavaFX thread. Publishing only writes to
+ * memory, so it never blocks, and old records are simply overwritten when
+ * no reader keeps up. All numbers are little endian.
+ *
+ * Header (64 bytes):
+ *   0  int  magic "KSSF"
+ *   4  int  version
+ *   8  int  record size (64)
+ *   12 int  capacity (number of records)
+ *   16 long sequence of the last published record, 0 if none
+ *
+ * Record n (n starting at 1) is at 64 + ((n - 1) % capacity) * 64:
+ *   0  long sequence, n once the record is complete, -1 while it is written
+ *   8  long time in nanoseconds (System.nanoTime)
+ *   16 int  type (SPAWN, MATCH, EXPIRE, KEYSTROKE or SCORE)
+ *   20 int  score
+ *   24 int  value, the WPM * 100 for SCORE and the key code for KEYSTROKE
+ *   28 int  number of active words
+ *   32 short length of the text
+ *   34 30 bytes of ASCII text, the word or the typed letters
+ *
+ * A reader reads the sequence, copies the record and reads the sequence
+ * again. If both are the expected n the copy is whole, otherwise the
+ * writer lapped the reader and the record is lost.
+ */
+public class StateFeed {
+    // Types of records
+    public static final int SPAWN = 1;
+    public static final int MATCH = 2;
+    public static final int EXPIRE = 3;
+    public static final int KEYSTROKE = 4;
+    public static final int SCORE = 5;
+    // First bytes of the file ("KSSF")
+    private static final int MAGIC = 0x4653534B;
+    // Version of the layout
+    private static final int VERSION = 1;
+    // Size of the header and of every record
+    private static final int HEADER_BYTES = 64;
+    private static final int RECORD_BYTES = 64;
+    // Longest text that fits in a record
+    private static final int MAX_TEXT = 30;
+    // Offset of the last published sequence in the header
+    private static final int LAST_SEQUENCE = 16;
+    // Ordered access to the sequences, so readers never see a record before its contents
+    private static final VarHandle LONGS =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    // Memory mapped file
+    private final MappedByteBuffer buffer;
+    // Number of records in the ring
+    private final int capacity;
+    // Sequence of the last published record
+    private long sequence;
+
+    /*
+     * Constructor for StateFeed.
+     * Creates (or reuses) the file and maps it into memory.
+     * @param path String to the file
+     * @param capacity number of records in the ring
+     * @throws IOException
+     */
+    public StateFeed(String path, int capacity) throws IOException {
+        this.capacity = capacity;
+
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+
+            // The mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER_BYTES + (long) capacity * RECORD_BYTES);
+
+        }
+
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        // Start a new feed, readers see the sequence restart at 0
+        LONGS.setRelease(buffer, LAST_SEQUENCE, 0L);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, RECORD_BYTES);
+        buffer.putInt(12, capacity);
+
+    }
+
+    /*
+     * Writes a record into the next slot of the ring and publishes it
+     * @param type int type of the record
+     * @param score int current score
+     * @param value int WPM * 100 or key code, depending on the type
+     * @param activeWords int number of words on the screen
+     * @param text String word or typed letters, cut to 30 characters
+     */
+    public void publish(int type, int score, int value, int activeWords, String text) {
+
+        long next = sequence + 1;
+        int offset = HEADER_BYTES + (int) ((next - 1) % capacity) * RECORD_BYTES;
+
+        // Mark the slot as being written before touching its contents
+        LONGS.setRelease(buffer, offset, -1L);
+        VarHandle.storeStoreFence();
+
+        int length = Math.min(text.length(), MAX_TEXT);
+
+        buffer.putLong(offset + 8, System.nanoTime());
+        buffer.putInt(offset + 16, type);
+        buffer.putInt(offset + 20, score);
+        buffer.putInt(offset + 24, value);
+        buffer.putInt(offset + 28, activeWords);
+        buffer.putShort(offset + 32, (short) length);
+
+        for (int i = 0; i < length; i++) {
+            buffer.put(offset + 34 + i, (byte) text.charAt(i));
+        }
+
+        // Publish the slot, then the header
+        LONGS.setRelease(buffer, offset, next);
+        LONGS.setRelease(buffer, LAST_SEQUENCE, next);
+
+        sequence = next;
+    }
+}
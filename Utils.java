@@ -2,13 +2,15 @@ import javafx.scene.input.KeyCode;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Scanner;
 
 /*
  *  @author Muhammad Danish
  *
- * A class of the Typing Game that provide two utility functions.
+ * A class of the Typing Game that provide some utility functions.
  */
 public class Utils {
 
@@ -29,20 +31,92 @@ public class Utils {
     }
 
     /*
-     * Collect Strings from the file
-     * and add them to a List
-     * @param path String to the file
-     * @return List<String> words from the file
+     * Collect Strings from the file, or from every file if the path
+     * is a directory, and add them to a List.
+     * Blank lines are skipped and only words made of the letters A-Z are kept,
+     * since those are the only keys the game accepts.
+     * @param path String to the file or directory
+     * @return List<String> unmodifiable list of words from the file
      */
     public static List<String> readWords(String path) throws FileNotFoundException {
 
-        Scanner sc = new Scanner(new File(path));
+        File file = new File(path);
         List<String> words = new ArrayList<>();
 
-        while (sc.hasNextLine()) {
-            words.add(sc.nextLine());
+        if (file.isDirectory()) {
+
+            File[] files = file.listFiles(f -> f.isFile() && isWordFile(f.getName()));
+
+            // Sort so that the order of the words does not depend on the file system
+            if (files != null) {
+                Arrays.sort(files);
+
+                for (File f : files) {
+                    readWords(f, words);
+                }
+            }
+        }
+        else {
+
+            readWords(file, words);
+
+        }
+
+        return Collections.unmodifiableList(words);
+    }
+
+    /*
+     * Checks if a file in a dictionary directory holds words. Only visible
+     * .txt files count, so that editor backups, swap and temp files are skipped.
+     * @param name String name of the file
+     * @return true if the file should be read as part of the dictionary
+     */
+    public static boolean isWordFile(String name) {
+
+        return !name.startsWith(".") && name.endsWith(".txt");
+
+    }
+
+    /*
+     * Adds the valid words of a single file to the given List
+     * @param file File to read
+     * @param words List<String> to add the words to
+     */
+    private static void readWords(File file, List<String> words) throws FileNotFoundException {
+
+        try (Scanner sc = new Scanner(file)) {
+
+            while (sc.hasNextLine()) {
+
+                String word = sc.nextLine().trim();
+
+                if (isValidWord(word)) {
+                    words.add(word);
+                }
+            }
+        }
+    }
+
+    /*
+     * Checks that the word is not empty and only contains the letters A-Z
+     * @param word String to check
+     * @return true if the word can be typed in the game
+     */
+    private static boolean isValidWord(String word) {
+
+        if (word.isEmpty()) {
+            return false;
+        }
+
+        for (int i = 0; i < word.length(); i++) {
+
+            char c = Character.toUpperCase(word.charAt(i));
+
+            if (c < 'A' || c > 'Z') {
+                return false;
+            }
         }
 
-        return words;
+        return true;
     }
 }
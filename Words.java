@@ -1,6 +1,7 @@
 import javafx.animation.KeyFrame;
 import javafx.animation.KeyValue;
 import javafx.animation.Timeline;
+import javafx.scene.control.CheckBox;
 import javafx.scene.control.Slider;
 import javafx.scene.control.Label;
 import javafx.scene.input.KeyCode;
@@ -10,10 +11,13 @@ import javafx.scene.paint.Color;
 import javafx.util.Duration;
 import javafx.scene.shape.Rectangle;
 import javafx.animation.FillTransition;
-import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Queue;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
 
 /*
  *  @author Muhammad Danish
@@ -24,18 +28,27 @@ public class Words {
     // Pane (https://openjfx.io/javadoc/18/javafx.graphics/javafx/scene/layout/Pane.html)
     // which represents the floating words part of the game
     private final Pane wordsPane;
-    // List of all available words
-    private final List<String> words;
+    // Available words and their generator, swapped in one step when the dictionary is reloaded
+    private final AtomicReference<Dictionary> dictionary;
     // List of all JavaFX floating words currently on the screen
     private final List<WordBox> activeWords;
+    // Timelines moving the words currently floating on the screen
+    private final List<Timeline> floatingTimelines;
     // List of all keys that have been pressed since the last correct word
     private final List<KeyCode> typed;
+    // Keys pressed since the last pulse of the game loop, oldest first
+    private final Queue<KeyCode> pendingKeys;
     // JavaFX Label which shows the score on the screen
     private final Label scoreLabel;
     // Keeps track of the number of correct words
     private int score = 0;
+    // Number of letter keys pressed and how many of them ended up in a correct word
+    private int typedLetters = 0;
+    private int correctLetters = 0;
     // JavaFX Label which shows what the user has typed since the last correct word
     private final Label typedLabel;
+    // Live feed of the game state for other processes, null if there is none
+    private final StateFeed feed;
     // Width/height of the screen
     private final double width;
     private final double height;
@@ -43,6 +56,7 @@ public class Words {
     private Label stayDurationLabel = new Label("Duration of Words (Sec): ");
     private Slider spawnSpeedSlider = new Slider(10, 60, 20);
     private Slider stayDurationSlider = new Slider(5, 30, 10);
+    private CheckBox generatedWordsCheckBox = new CheckBox("Made-up Words");
 
     /*
      * Contructor for Words
@@ -51,21 +65,47 @@ public class Words {
      * @param height
      * @param scoreLabel
      * @param typedLabel
-     * @throws FileNotFoundException
+     * @param feed StateFeed to publish the game state to, or null
+     * @throws IOException if the dictionary can not be read or has no valid words
      */
     public Words(String path, double width, double height,
-                 Label scoreLabel, Label typedLabel) throws FileNotFoundException {
+                 Label scoreLabel, Label typedLabel, StateFeed feed) throws IOException {
         wordsPane = new Pane();
         wordsPane.setPrefWidth(width);
         wordsPane.setPrefHeight(height);
 
-        this.words = Utils.readWords(path);
+        List<String> initialWords = Utils.readWords(path);
+
+        // Same rule as for reloads, createWord needs at least one word to choose from
+        if (initialWords.isEmpty()) {
+            throw new IOException("No valid words (letters A-Z only) in dictionary: " + path);
+        }
+
+        dictionary = new AtomicReference<>(new Dictionary(initialWords));
+
+        // Reload the words and retrain the generator in the background
+        // whenever the dictionary changes, then publish both together
+        DictionaryWatcher dictionaryWatcher = new DictionaryWatcher(path, newWords -> dictionary.set(new Dictionary(newWords)));
+
+        try {
+
+            dictionaryWatcher.start();
+
+        }
+        catch (IOException e) {
+
+            System.err.println("Dictionary will not be reloaded: " + e.getMessage());
+
+        }
 
         activeWords = new ArrayList<>();
+        floatingTimelines = new ArrayList<>();
         typed = new ArrayList<>();
+        pendingKeys = new ArrayDeque<>();
 
         this.scoreLabel = scoreLabel;
         this.typedLabel = typedLabel;
+        this.feed = feed;
 
         this.width = width;
         this.height = height;
@@ -92,6 +132,20 @@ public class Words {
 
     }
 
+    /*
+     * Getter for the accuracy of the typing in game
+     * @return fraction (0 - 1) of the typed letters that were part of a correct word
+     */
+    public double getAccuracy() {
+
+        if (typedLetters == 0) {
+            return 0;
+        }
+
+        return (double) correctLetters / typedLetters;
+
+    }
+
     /*
      * Getter for the spawn speed of words
      * @return spawn speed int
@@ -153,6 +207,16 @@ public class Words {
 
     }
 
+    /*
+     * Getter for the made-up words CheckBox
+     * @return generatedWordsCheckBox CheckBox
+     */
+    public CheckBox getGeneratedWordsCheckBox() {
+
+        return generatedWordsCheckBox;
+
+    }
+
     /*
      * Removes the wordBox from the wordsPane as well as
      * removing it from activeWords.
@@ -177,6 +241,11 @@ public class Words {
         // Normal removal for timeout of words
             wordsPane.getChildren().remove(wordBox.getWordBox());
 
+            // Correct words also time out later, only report the ones that were missed
+            if (activeWords.contains(wordBox)) {
+                publish(StateFeed.EXPIRE, 0, activeWords.size() - 1, wordBox.getWord());
+            }
+
         }
 
         activeWords.remove(wordBox);
@@ -185,7 +254,8 @@ public class Words {
 
     /*
      * Creates a random floating word.
-     * Choses a random word from the list of words.
+     * Choses a random word from the list of words, or makes one up
+     * if the made-up words CheckBox is selected.
      * Then chooses a starting point on any edge of the screen.
      * Then creates a Timeline (https://openjfx.io/javadoc/18/javafx.graphics/javafx/animation/Timeline.html)
      * that moves the WordBox from its starting point to a random ending
@@ -193,8 +263,19 @@ public class Words {
      */
     public void createWord() {
 
-        // Get a random word from the list of words
-        String word = words.get(ThreadLocalRandom.current().nextInt(words.size()));
+        String word;
+
+        // Make up a word, or get a random word from the current list of words
+        if (generatedWordsCheckBox.isSelected()) {
+
+            word = dictionary.get().generatedWord();
+
+        }
+        else {
+
+            word = dictionary.get().randomWord();
+
+        }
 
         // Create a WordBoX for the word
         WordBox wordBox = new WordBox(40, word, Color.TRANSPARENT);
@@ -216,6 +297,7 @@ public class Words {
 
         wordsPane.getChildren().add(spWordBox);
         activeWords.add(wordBox);
+        publish(StateFeed.SPAWN, 0, activeWords.size(), wordBox.getWord());
 
         // Use TimeLine transiiton to make the active words flooat
         // staring from the right edge and ending at random points
@@ -229,70 +311,167 @@ public class Words {
         );
 
         // Remove the word after the timeout
-        wordFloating.setOnFinished(event -> removeWord(wordBox, false));
+        wordFloating.setOnFinished(event -> {
+            floatingTimelines.remove(wordFloating);
+            removeWord(wordBox, false);
+        });
 
+        floatingTimelines.add(wordFloating);
         wordFloating.play();
 
     }
 
     /*
-     * Adds the keyCode to typed if it is a letter key.
-     * Removes the first element of typed if it is the backspace key.
-     * Either way it checks for a correct word and updates the typedLabel.
-     * @param keyCode KeyCode to add to the state
+     * Pauses all floating words where they are
+     */
+    public void pause() {
+
+        for (Timeline timeline : floatingTimelines) {
+            timeline.pause();
+        }
+
+    }
+
+    /*
+     * Lets all floating words continue from where they were paused
+     */
+    public void resume() {
+
+        for (Timeline timeline : floatingTimelines) {
+            timeline.play();
+        }
+
+    }
+
+    /*
+     * Ends the game. Stops all floating words without running their onFinished,
+     * so no word expires after the final score, and removes them from the screen.
+     */
+    public void stop() {
+
+        for (Timeline timeline : floatingTimelines) {
+            timeline.stop();
+        }
+
+        floatingTimelines.clear();
+        activeWords.clear();
+        pendingKeys.clear();
+        wordsPane.getChildren().clear();
+
+    }
+
+    /*
+     * Queues the keyCode to be processed by processTypedLetters
+     * on the next pulse of the game loop.
+     * @param keyCode KeyCode that was pressed
      */
     public void addTypedLetter(KeyCode keyCode) {
 
-        // If it is a letter, add to the typed label
-        if (keyCode.isLetterKey()) {
+        pendingKeys.add(keyCode);
 
-            typed.add(keyCode);
+    }
 
+    /*
+     * Processes all the keys queued since the last pulse, in order.
+     * Adds the keyCode to typed if it is a letter key.
+     * Removes the last element of typed if it is the backspace key.
+     * Either way it checks for a correct word after every key.
+     * The typedLabel and scoreLabel are only updated once at the end,
+     * so a burst of keys within one frame causes a single relayout.
+     */
+    public void processTypedLetters() {
+
+        if (pendingKeys.isEmpty()) {
+            return;
         }
-        // If it is a back space, remove to the last character from typed label
-        else if (keyCode == KeyCode.BACK_SPACE && !(typedLabel.getText().equals(""))) {
 
-            typed.remove(typed.size() - 1);
+        int oldScore = score;
+
+        while (!pendingKeys.isEmpty()) {
+
+            KeyCode keyCode = pendingKeys.poll();
+
+            // If it is a letter, add to the typed letters
+            if (keyCode.isLetterKey()) {
+
+                typed.add(keyCode);
+                typedLetters++;
+
+            }
+            // If it is a back space, remove the last typed letter
+            else if (keyCode == KeyCode.BACK_SPACE && !typed.isEmpty()) {
+
+                typed.remove(typed.size() - 1);
+
+            }
+
+            String typedText = Utils.combineList(typed);
+            publish(StateFeed.KEYSTROKE, keyCode.getCode(), activeWords.size(), typedText);
+
+            // Check if the typed letters match any active words
+            checkForCorrectWord(typedText);
 
         }
 
-        // Check if the word in typed the label matches any active words
-        checkForCorrectWord(Utils.combineList(typed));
+        // Write the labels once for the whole batch
+        String typedText = Utils.combineList(typed);
+
+        if (!typedLabel.getText().equals(typedText)) {
+            typedLabel.setText(typedText);
+        }
 
+        if (score != oldScore) {
+            scoreLabel.setText(Integer.toString(score));
+        }
     }
 
     /*
      * Checks if the given String is equal to any of the currently
-     * active words. If it is then it updates the score and scoreLabel.
-     * It also removes the wordBox and clears the typed list.
+     * active words. If it is then it updates the score,
+     * removes the wordBox and clears the typed list.
      * @param s Word to check
      */
     private void checkForCorrectWord(String s) {
 
-        boolean correctWordFound = false;
-
         // Check if the String s matched any word of the active WordBoxes
         for (WordBox wb : activeWords) {
 
             if (wb.getWord().equals(s)) {
 
-                // Remove the word as correct, update score, and clear screen & typed label
+                // Remove the word as correct, update score, and clear typed letters
                 removeWord(wb, true);
                 typed.clear();
-                typedLabel.setText("");
                 score++;
-                scoreLabel.setText(Integer.toString(score));
-                correctWordFound = true;
+                correctLetters += s.length();
+                publish(StateFeed.MATCH, 0, activeWords.size(), s);
                 break;
 
             }
         }
+    }
 
-        // If correct word not found, do nothing with the typed label
-        if (!correctWordFound) {
-
-            typedLabel.setText(s);
+    /*
+     * Publishes a record to the feed, if there is one
+     * @param type int type of the record
+     * @param value int value of the record
+     * @param active int number of active words
+     * @param text String word or typed letters
+     */
+    private void publish(int type, int value, int active, String text) {
 
+        if (feed != null) {
+            feed.publish(type, score, value, active, text);
         }
+
+    }
+
+    /*
+     * Publishes the current score and WPM to the feed, if there is one
+     * @param wpm double words per minute
+     */
+    public void publishScore(double wpm) {
+
+        publish(StateFeed.SCORE, (int) Math.round(wpm * 100), activeWords.size(), "");
+
     }
 }